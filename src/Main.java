@@ -21,6 +21,7 @@ import services.SessionCleaner;
 import services.UserService;
 import templater.Templater;
 import templater.compiler.tokeniser.UnknownTokenException;
+import webserver.ConnectionMode;
 import webserver.WebServer;
 
 public class Main {
@@ -104,11 +105,17 @@ public class Main {
 
   /**
    * Starts the web server and add necessary routes.
+   * <p>
+   * The server uses an event loop by default, which can be
+   * swapped for a thread per connection by running with
+   * {@code -Ddubj.connectionMode=VIRTUAL_THREADS}.
    *
    * @param port The port at which to start the server at.
    */
   public static void startWebServer(int port) {
-    WebServer server = new WebServer(port);
+    ConnectionMode mode =
+      ConnectionMode.valueOf(System.getProperty("dubj.connectionMode", "EVENT_LOOP"));
+    WebServer server = new WebServer(port, mode);
     SessionCleaner sessCleaner = new SessionCleaner();
     sessCleaner.start();
 
@@ -0,0 +1,459 @@
+package webserver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A single client connection to a {@code WebServer}.
+ * <p>
+ * A connection stores everything the server needs to
+ * remember about a client in between reads: the channel
+ * itself, the request currently being assembled, and the
+ * keep-alive details negotiated with the client. Since a
+ * connection does not own a thread, an idle connection
+ * costs nothing more than the memory it occupies.
+ * <p>
+ * Connections work over both non-blocking channels, watched
+ * by an {@link EventLoop}, and blocking channels owned by a
+ * thread each, as in {@link ThreadPerConnectionAcceptor}.
+ * <p>
+ * The expected lifecycle is to {@link #read()} whenever the
+ * channel has data available until
+ * {@link #hasCompletedRequest()} returns true, then call
+ * {@link #respond()} (normally on a worker thread) to
+ * handle the request and write the response. If
+ * {@code respond()} returns false, the connection should be
+ * closed with {@link #close()}.
+ * <p>
+ * Created <b> 2026-10-17 </b>.
+ *
+ * @since 1.0.0
+ * @version 1.0.0
+ * @author Joseph Wang
+ */
+class Connection {
+  /**
+   * The default amount of time to wait before terminating a
+   * connection.
+   */
+  public static final int DEFAULT_TIMEOUT_MS = 15_000;
+  /**
+   * The default amount of requests that can be sent on one
+   * connection.
+   */
+  public static final int MAX_REQ = 100;
+  /**
+   * The longest a client may take to send a full request, in
+   * ms.
+   */
+  public static final int REQUEST_TIMEOUT_MS = 10_000;
+  /** The size of the buffer used to read from the client. */
+  private static final int READ_BUFFER_SIZE = 8192;
+  /** The longest a write may stall before giving up, in ms. */
+  private static final int WRITE_TIMEOUT_MS = 30_000;
+  /** The pattern used to parse a {@code Keep-Alive} header. */
+  private static final Pattern KEEP_ALIVE_PATTERN =
+    Pattern.compile("timeout=(\\d+), max=(\\d+)");
+
+  /**
+   * A selector per worker thread, used to wait for a
+   * non-blocking channel to become writable again without
+   * spinning.
+   */
+  private static final ThreadLocal<Selector> WRITE_SELECTOR =
+    ThreadLocal.withInitial(() -> {
+      try {
+        return Selector.open();
+      } catch (IOException e) {
+        throw new IllegalStateException("Could not open a write selector.", e);
+      }
+    });
+
+  /** The server that this connection belongs to. */
+  private final WebServer server;
+  /** The channel connected to the client. */
+  private final SocketChannel channel;
+  /**
+   * The channel that reads from the client come from. For a
+   * blocking channel, this reads through the socket so that
+   * the socket's timeout is respected.
+   */
+  private final ReadableByteChannel input;
+  /** The buffer that reads from the client land in. */
+  private final ByteBuffer readBuffer;
+  /** The parser for the request currently being read. */
+  private final RequestParser parser;
+  /**
+   * The reason the request being read is malformed, or
+   * {@code null} if it is not.
+   */
+  private HttpSyntaxException syntaxError;
+
+  /**
+   * The amount of time to wait before terminating a
+   * connection.
+   */
+  private int timeoutMs = Connection.DEFAULT_TIMEOUT_MS;
+  /**
+   * The amount of requests that can be sent on one
+   * connection.
+   */
+  private int maxReq = Connection.MAX_REQ;
+  /** When the connection was opened, in ms. */
+  private long connectionOpenTime;
+  /**
+   * When the first bytes of the request being assembled were
+   * read, in ms.
+   */
+  private long requestStartTime;
+  /** The current amount of requests handled. */
+  private int curReq;
+  /** If the connection should be closed immediately. */
+  private boolean closeImmediately = false;
+  /**
+   * Whether a request from this connection is currently being
+   * handled by a worker.
+   */
+  private volatile boolean busy = false;
+
+  /**
+   * Constructs a new Connection to handle a specific client.
+   *
+   * @param server  The server that accepted the client.
+   * @param channel The channel connected to the client.
+   * @throws IOException if the channel is blocking and its
+   *                     socket stream could not be opened.
+   */
+  public Connection(WebServer server, SocketChannel channel)
+    throws IOException {
+    this.server = server;
+    this.channel = channel;
+    if (channel.isBlocking()) {
+      // A blocking channel read ignores SO_TIMEOUT, the socket's
+      // own stream does not
+      this.input = Channels.newChannel(channel.socket().getInputStream());
+    } else {
+      this.input = channel;
+    }
+    this.readBuffer = ByteBuffer.allocate(Connection.READ_BUFFER_SIZE);
+    this.parser = new RequestParser();
+
+    this.connectionOpenTime = System.currentTimeMillis();
+    this.curReq = 0;
+  }
+
+  /**
+   * Reads whatever the client has sent so far and parses it
+   * as part of the request being assembled.
+   * <p>
+   * On a non-blocking channel this never waits, and may
+   * return 0 if nothing was available. On a blocking channel
+   * this waits for at most the socket's timeout.
+   *
+   * @return the amount of bytes read, or -1 if the client
+   *         has closed its end of the connection.
+   * @throws IOException if an I/O error occurs while reading,
+   *                     including the socket timing out.
+   */
+  public int read() throws IOException {
+    int bytesRead = this.input.read(this.readBuffer);
+
+    if (bytesRead > 0) {
+      this.parseBuffered();
+    }
+
+    return bytesRead;
+  }
+
+  /**
+   * Feeds every buffered byte to the parser, up until the end
+   * of the current request. Bytes past the end of the request
+   * are kept in the buffer.
+   */
+  private void parseBuffered() {
+    boolean wasStarted = this.parser.hasStarted();
+
+    this.readBuffer.flip();
+    try {
+      this.parser.parse(this.readBuffer);
+    } catch (HttpSyntaxException e) {
+      this.syntaxError = e;
+    }
+    this.readBuffer.compact();
+
+    if (!wasStarted && this.parser.hasStarted()) {
+      this.requestStartTime = System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * Checks whether the request being assembled is complete
+   * and ready to be handled.
+   *
+   * @return true if a full request has been read.
+   */
+  public boolean hasCompletedRequest() {
+    return this.parser.isComplete() || this.syntaxError != null;
+  }
+
+  /**
+   * Handles the assembled request and writes the response
+   * back to the client.
+   * <p>
+   * This method blocks until the whole response has been
+   * written, and should therefore be called from a worker
+   * rather than the thread watching for readiness.
+   *
+   * @return true if the connection should stay open for more
+   *         requests, or false if it should be closed.
+   */
+  public boolean respond() {
+    Response res;
+    this.curReq++;
+
+    try {
+      if (this.syntaxError != null) {
+        // There is no telling where the next request starts
+        this.closeImmediately = true;
+        throw this.syntaxError;
+      }
+      Request req = this.parser.construct();
+
+      if (!req.getProtocol().equals("HTTP/1.1")) {
+        res = Response.unsupportedVersion();
+      } else {
+        this.initializeConnectionInformation(req);
+        res = this.server.generateResponse(req);
+      }
+    } catch (HttpSyntaxException e) {
+      res = Response.badRequest();
+    }
+    this.parser.reset();
+
+    try {
+      byte[] outputResponse = res.toString().getBytes(StandardCharsets.UTF_8);
+      this.write(ByteBuffer.wrap(outputResponse));
+    } catch (IOException e) {
+      return false;
+    }
+
+    return !this.shouldCloseConnection();
+  }
+
+  /**
+   * Writes the provided buffers to the client in full.
+   * <p>
+   * If the channel is non-blocking and the client is not
+   * reading fast enough, the calling thread waits for the
+   * channel to become writable instead of spinning.
+   *
+   * @param buffers The buffers to write, in order.
+   * @throws IOException if an I/O error occurs while writing,
+   *                     or the client stops reading for too
+   *                     long.
+   */
+  public void write(ByteBuffer... buffers) throws IOException {
+    SelectionKey writeKey = null;
+
+    try {
+      while (Connection.hasRemaining(buffers)) {
+        if (this.channel.write(buffers) > 0) {
+          continue;
+        }
+
+        if (writeKey == null) {
+          writeKey =
+            this.channel
+              .register(Connection.WRITE_SELECTOR.get(), SelectionKey.OP_WRITE);
+        }
+        if (writeKey.selector().select(Connection.WRITE_TIMEOUT_MS) == 0) {
+          throw new IOException("Timed out writing to client.");
+        }
+        writeKey.selector().selectedKeys().clear();
+      }
+    } finally {
+      if (writeKey != null) {
+        // The cancelled key has to be flushed out of the selector
+        // before this channel can be registered to it again
+        writeKey.cancel();
+        writeKey.selector().selectNow();
+      }
+    }
+  }
+
+  /**
+   * Checks if any of the provided buffers still have bytes
+   * left to write.
+   *
+   * @param buffers The buffers to check.
+   * @return true if at least one buffer has bytes remaining.
+   */
+  private static boolean hasRemaining(ByteBuffer[] buffers) {
+    for (ByteBuffer buffer : buffers) {
+      if (buffer.hasRemaining()) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Determines whether or not to close the current open
+   * connection with the client, based on {@code Connection}
+   * and {@code Keep-Alive} headers.
+   * <p>
+   * If the headers do not exist, the connection persists for
+   * the default amount of time or requests.
+   *
+   * @return true if the connection with the client should be
+   *         terminated.
+   */
+  private boolean shouldCloseConnection() {
+    if (this.curReq >= this.maxReq) {
+      return true;
+    }
+
+    if (
+      System.currentTimeMillis()-this.connectionOpenTime >= this.timeoutMs
+    ) {
+      return true;
+    }
+
+    // If neither of the above are true, just make sure we don't
+    // need to close immediately
+    return this.closeImmediately;
+  }
+
+  /**
+   * Retrieves the time at which this connection will have
+   * outlived its welcome while waiting on the client.
+   * <p>
+   * A connection in the middle of sending a request expires
+   * once it has taken longer than {@link #REQUEST_TIMEOUT_MS}
+   * to send it.
+   * Otherwise, an idle connection expires once it has been
+   * open for longer than its keep-alive timeout.
+   *
+   * @return the time this connection expires at, in ms.
+   */
+  public long getExpiryTime() {
+    if (this.parser.hasStarted()) {
+      return this.requestStartTime+Connection.REQUEST_TIMEOUT_MS;
+    }
+
+    return this.connectionOpenTime+this.timeoutMs;
+  }
+
+  /**
+   * Checks whether this connection has outlived its welcome
+   * while waiting on the client. A connection with a request
+   * being handled never expires.
+   *
+   * @param now The current time, in ms.
+   * @return true if this connection should be closed.
+   * @see #getExpiryTime()
+   */
+  public boolean isExpired(long now) {
+    return !this.busy && now >= this.getExpiryTime();
+  }
+
+  /**
+   * Initializes information about the connection with the
+   * client.
+   * <p>
+   * This method will use {@code Connection} and
+   * {@code Keep-Alive} headers to determine how to manage the
+   * connection. If these headers are not present, the
+   * connection will persist for the default amount of time or
+   * requests.
+   * <p>
+   * Refer to
+   * <a href="https://tools.ietf.org/html/rfc2616">RFC
+   * 2616</a> for more details.
+   *
+   * @param req The request to use to parse information about
+   *            the connection.
+   * @throws HttpSyntaxException if the {@code Keep-Alive}
+   *                             header is invalid.
+   */
+  private void initializeConnectionInformation(Request req)
+    throws HttpSyntaxException {
+    // Connection header does not exist
+    if (!req.hasHeader("Connection")) {
+      return;
+    }
+
+    // Connection header exists
+    String connectionValue = req.getHeader("Connection");
+
+    // Return if we are to close immediately
+    if (connectionValue.contains("close")) {
+      this.closeImmediately = true;
+      return;
+
+    } else if (connectionValue.contains("keep-alive")) {
+      if (req.hasHeader("Keep-Alive")) {
+        Matcher m =
+          Connection.KEEP_ALIVE_PATTERN.matcher(req.getHeader("Keep-Alive"));
+
+        if (m.find()) {
+          this.timeoutMs = Integer.parseInt(m.group(0));
+          this.maxReq = Integer.parseInt(m.group(1));
+        } else {
+          throw new HttpSyntaxException("Keep-Alive header malformed.");
+        }
+      }
+    }
+    // If connection has neither close or keep-alive, use
+    // default
+  }
+
+  /**
+   * Marks whether a request from this connection is currently
+   * being handled.
+   *
+   * @param busy Whether a request is being handled.
+   */
+  public void setBusy(boolean busy) {
+    this.busy = busy;
+  }
+
+  /**
+   * Retrieves the channel connected to the client.
+   *
+   * @return the channel connected to the client.
+   */
+  public SocketChannel getChannel() {
+    return this.channel;
+  }
+
+  /**
+   * Checks if the connection with the client is still open.
+   *
+   * @return true if the connection is open.
+   */
+  public boolean isOpen() {
+    return this.channel.isOpen();
+  }
+
+  /**
+   * Attempts to close the connection with the client.
+   */
+  public void close() {
+    try {
+      this.channel.close();
+    } catch (IOException e) {
+      System.out.println("Failed to close connection.");
+      e.printStackTrace();
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package webserver;
+
+/**
+ * A strategy for accepting connections to a
+ * {@code WebServer} and reading their requests.
+ * <p>
+ * Implementing classes decide how connections are mapped to
+ * threads, and should hand every fully read request to the
+ * server through a {@link Connection}. Running the acceptor
+ * blocks until {@link #stop()} is called.
+ * <p>
+ * Created <b> 2026-10-17 </b>.
+ *
+ * @since 1.0.0
+ * @version 1.0.0
+ * @author Joseph Wang
+ * @see ConnectionMode
+ */
+interface ConnectionAcceptor extends Runnable {
+  /**
+   * Stops accepting connections, and closes every channel
+   * owned by this acceptor.
+   * <p>
+   * This method is safe to call from any thread.
+   */
+  public void stop();
+}
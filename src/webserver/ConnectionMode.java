@@ -0,0 +1,30 @@
+package webserver;
+
+/**
+ * The ways a {@code WebServer} can map connections to
+ * threads.
+ * <p>
+ * Created <b> 2026-10-17 </b>.
+ *
+ * @since 1.0.0
+ * @version 1.0.0
+ * @author Joseph Wang
+ * @see WebServer#WebServer(int, int, ConnectionMode)
+ */
+public enum ConnectionMode {
+  /**
+   * Every connection is watched by a single selector thread,
+   * and requests are handled on a fixed pool of workers.
+   * Idle connections do not occupy a thread.
+   */
+  EVENT_LOOP,
+  /**
+   * Every connection is served start to finish by its own
+   * virtual thread, using plain blocking I/O. Handlers that
+   * block for a long time only park their virtual thread.
+   * <p>
+   * On a runtime without virtual threads, platform threads
+   * from an unbounded cached pool are used instead.
+   */
+  VIRTUAL_THREADS;
+}
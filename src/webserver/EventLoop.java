@@ -0,0 +1,280 @@
+package webserver;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A single-threaded event loop that accepts connections and
+ * reads requests for a {@code WebServer} using a
+ * {@code Selector}.
+ * <p>
+ * The loop only ever waits on the selector, so connections
+ * that are idle do not occupy any thread. Once a full
+ * request has been read from a connection, the connection
+ * stops being watched for reads and is handed to a worker
+ * from the provided pool, which handles the request and
+ * writes the response. When the worker is done, the
+ * connection is either closed or given back to the loop
+ * through {@link #resume(Connection)}.
+ * <p>
+ * Connections that stay idle for longer than their
+ * keep-alive timeout are swept and closed periodically.
+ * <p>
+ * Created <b> 2026-10-17 </b>.
+ *
+ * @since 1.0.0
+ * @version 1.0.0
+ * @author Joseph Wang
+ */
+class EventLoop implements ConnectionAcceptor {
+  /** How often idle connections are checked for, in ms. */
+  private static final int SWEEP_INTERVAL_MS = 1_000;
+
+  /** The server that requests are handled by. */
+  private final WebServer server;
+  /** The selector watching every channel. */
+  private final Selector selector;
+  /** The channel accepting new connections. */
+  private final ServerSocketChannel serverChannel;
+  /** The pool that requests are handled on. */
+  private final ExecutorService workers;
+  /**
+   * The connections finished by a worker that should be
+   * watched for reads again. Interest changes are done on the
+   * loop thread so that the selector is never raced.
+   */
+  private final ConcurrentLinkedQueue<Connection> toResume;
+  /** Whether the loop should keep running. */
+  private volatile boolean running = true;
+
+  /**
+   * Constructs a new EventLoop listening on a port.
+   *
+   * @param server  The server that requests are handled by.
+   * @param port    The port to listen on.
+   * @param workers The pool that requests are handled on.
+   * @throws IOException if the port could not be bound.
+   */
+  public EventLoop(WebServer server, int port, ExecutorService workers)
+    throws IOException {
+    this.server = server;
+    this.workers = workers;
+    this.toResume = new ConcurrentLinkedQueue<>();
+
+    this.selector = Selector.open();
+    this.serverChannel = ServerSocketChannel.open();
+    this.serverChannel.bind(new InetSocketAddress(port));
+    this.serverChannel.configureBlocking(false);
+    this.serverChannel.register(this.selector, SelectionKey.OP_ACCEPT);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Runs the event loop until {@link #stop()} is called.
+   */
+  @Override
+  public void run() {
+    long nextSweep = System.currentTimeMillis()+EventLoop.SWEEP_INTERVAL_MS;
+
+    while (this.running) {
+      try {
+        this.selector.select(EventLoop.SWEEP_INTERVAL_MS);
+      } catch (IOException e) {
+        e.printStackTrace();
+        break;
+      }
+
+      this.resumePending();
+
+      Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+      while (keys.hasNext()) {
+        SelectionKey key = keys.next();
+        keys.remove();
+
+        if (!key.isValid()) {
+          continue;
+        }
+
+        if (key.isAcceptable()) {
+          this.acceptConnections();
+        } else if (key.isReadable()) {
+          this.readFrom(key);
+        }
+      }
+
+      long now = System.currentTimeMillis();
+      if (now >= nextSweep) {
+        this.closeExpired(now);
+        nextSweep = now+EventLoop.SWEEP_INTERVAL_MS;
+      }
+    }
+
+    this.closeAll();
+  }
+
+  /**
+   * Accepts every connection that is waiting to be accepted
+   * and starts watching them for reads.
+   */
+  private void acceptConnections() {
+    try {
+      SocketChannel client = this.serverChannel.accept();
+      while (client != null) {
+        client.configureBlocking(false);
+        client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        client.register(
+          this.selector,
+          SelectionKey.OP_READ,
+          new Connection(this.server, client)
+        );
+
+        client = this.serverChannel.accept();
+      }
+    } catch (IOException e) {
+      System.out.println("Failed to accept a connection.");
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Reads from a connection that has data available, and
+   * dispatches its request to a worker if it is complete.
+   *
+   * @param key The key of the readable connection.
+   */
+  private void readFrom(SelectionKey key) {
+    Connection connection = (Connection)key.attachment();
+
+    try {
+      if (connection.read() < 0) {
+        connection.close();
+        return;
+      }
+    } catch (IOException e) {
+      connection.close();
+      return;
+    }
+
+    if (connection.hasCompletedRequest()) {
+      // Stop watching while the request is handled, so that the
+      // worker has the connection to itself
+      key.interestOps(0);
+      connection.setBusy(true);
+      try {
+        this.workers.execute(() -> this.serve(connection));
+      } catch (RejectedExecutionException e) {
+        // Only happens once the server is shutting down
+        connection.close();
+      }
+    }
+  }
+
+  /**
+   * Handles a connection's request on a worker, and then
+   * either closes the connection or gives it back to the
+   * loop.
+   *
+   * @param connection The connection to serve.
+   */
+  private void serve(Connection connection) {
+    boolean keepOpen = false;
+    try {
+      keepOpen = connection.respond();
+    } catch (RuntimeException e) {
+      e.printStackTrace();
+    }
+
+    if (keepOpen) {
+      this.resume(connection);
+    } else {
+      connection.close();
+    }
+  }
+
+  /**
+   * Gives a connection back to the loop to be watched for
+   * reads again.
+   * <p>
+   * This method is safe to call from any thread.
+   *
+   * @param connection The connection to resume.
+   */
+  public void resume(Connection connection) {
+    this.toResume.add(connection);
+    this.selector.wakeup();
+  }
+
+  /**
+   * Starts watching every resumed connection for reads again.
+   */
+  private void resumePending() {
+    Connection connection = this.toResume.poll();
+    while (connection != null) {
+      SelectionKey key = connection.getChannel().keyFor(this.selector);
+      connection.setBusy(false);
+      if (key != null && key.isValid()) {
+        key.interestOps(SelectionKey.OP_READ);
+      }
+
+      connection = this.toResume.poll();
+    }
+  }
+
+  /**
+   * Closes every connection that has been idle for too long.
+   *
+   * @param now The current time, in ms.
+   */
+  private void closeExpired(long now) {
+    for (SelectionKey key : this.selector.keys()) {
+      Object attachment = key.attachment();
+      if (attachment instanceof Connection) {
+        Connection connection = (Connection)attachment;
+        if (connection.isExpired(now)) {
+          connection.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * Closes the server channel, the selector, and every
+   * connection still open.
+   */
+  private void closeAll() {
+    for (SelectionKey key : this.selector.keys()) {
+      if (key.attachment() instanceof Connection) {
+        ((Connection)key.attachment()).close();
+      }
+    }
+
+    try {
+      this.serverChannel.close();
+      this.selector.close();
+    } catch (IOException e) {
+      System.out.println("Could not shut down server socket!");
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The loop will close every channel it owns before
+   * returning from {@link #run()}.
+   */
+  @Override
+  public void stop() {
+    this.running = false;
+    this.selector.wakeup();
+  }
+}
@@ -110,6 +110,27 @@ abstract class HttpMessage {
     this.body = body.getBytes(StandardCharsets.UTF_8);
   }
 
+  /**
+   * A constructor for a new HttpMessage with both a byte
+   * array body and headers, for invocation of implementing
+   * subclasses.
+   *
+   * @param headers A {@code Map<String, String>} with
+   *                applicable headers.
+   * @param body    The byte array with the body.
+   * @throws InvalidHeaderException if an improperly formatted
+   *                                header or value is
+   *                                provided in the headers
+   *                                map.
+   */
+  public HttpMessage(Map<String, String> headers, byte[] body)
+    throws InvalidHeaderException {
+    this.headers = new HashMap<>();
+    this.addHeaders(headers);
+    this.cookies = new HashMap<>();
+    this.body = body;
+  }
+
   /**
    * A constructor for a new HttpMessage with headers but no
    * body, for invocation of implementing subclasses. This
@@ -229,6 +229,42 @@ public class Request extends HttpMessage {
     this.initializeCookies();
   }
 
+  /**
+   * Constructs a new Request with a specified map of headers
+   * and a byte array body.
+   *
+   * @param method   The HTTP method for the request.
+   * @param fullPath The full path for the request.
+   * @param protocol The HTTP protocol for this request.
+   * @param headers  The headers for this request.
+   * @param body     The byte array body of the request.
+   * @throws HttpSyntaxException    if the path provided is
+   *                                invalid.
+   * @throws InvalidHeaderException if an improperly formatted
+   *                                header or value is
+   *                                provided in the headers
+   *                                map.
+   */
+  public Request(
+    String method,
+    String fullPath,
+    String protocol,
+    Map<String, String> headers,
+    byte[] body
+  ) throws HttpSyntaxException,
+    InvalidHeaderException {
+    super(headers, body);
+
+    this.method = method;
+    this.fullPath = fullPath;
+    this.protocol = protocol;
+    this.queryStrings = new HashMap<>();
+    this.params = new HashMap<>();
+
+    this.initializePathAndQueries(fullPath);
+    this.initializeCookies();
+  }
+
   /**
    * Constructs a new Request with specified string array of
    * headers and a body.
@@ -285,8 +321,8 @@ public class Request extends HttpMessage {
     throws HttpSyntaxException {
     try {
       URI pathUri = new URI(fullPath);
-      if (pathUri.getQuery() != null) {
-        this.parseQueryStrings(pathUri.getQuery());
+      if (pathUri.getRawQuery() != null) {
+        this.parseQueryStrings(pathUri.getRawQuery());
       }
       this.path = pathUri.getPath();
 
@@ -322,22 +358,38 @@ public class Request extends HttpMessage {
   }
 
   /**
-   * Takes in a decoded string with all the query strings from
-   * a path, parses through them, and adds them to this
+   * Takes in a raw string with all the query strings from a
+   * path, parses through them, and adds them to this
    * Request's map of queries.
+   * <p>
+   * Names and values are percent-decoded only after the
+   * string has been split, so that encoded {@code &} and
+   * {@code =} characters are kept as part of the name or
+   * value.
    *
-   * @param queryString The decoded string with queries,
-   *                    without the beginning {@code ?}
+   * @param queryString The raw string with queries, without
+   *                    the beginning {@code ?}
+   * @throws HttpSyntaxException if a query has an invalid
+   *                             percent encoding.
    */
-  private void parseQueryStrings(String queryString) {
-    // TODO: reimplement parsing to make encoded & and = work
+  private void parseQueryStrings(String queryString)
+    throws HttpSyntaxException {
     String[] queries = queryString.split("&");
     for (String query : queries) {
-      String[] queryInfo = query.split("=");
+      int separator = query.indexOf('=');
 
       // Ignore improperly formatted queries
-      if (queryInfo.length == 2) {
-        this.queryStrings.put(queryInfo[0], queryInfo[1]);
+      if (separator <= 0 || separator == query.length()-1) {
+        continue;
+      }
+
+      try {
+        this.queryStrings.put(
+          URLDecoder.decode(query.substring(0, separator), StandardCharsets.UTF_8),
+          URLDecoder.decode(query.substring(separator+1), StandardCharsets.UTF_8)
+        );
+      } catch (IllegalArgumentException e) {
+        throw new HttpSyntaxException("Query string encoding is invalid.", e);
       }
     }
   }
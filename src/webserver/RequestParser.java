@@ -0,0 +1,539 @@
+package webserver;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+/**
+ * An incremental HTTP/1.1 request parser, working directly
+ * on the bytes read from a connection.
+ * <p>
+ * Bytes can be fed to this parser in chunks of any size
+ * using {@link #parse(ByteBuffer)}, and the parser will pick
+ * up where the previous chunk left off, so every byte is
+ * only ever looked at once. The request line and headers
+ * are gathered a line at a time into a reusable line
+ * buffer, and only turned into strings once a full line has
+ * arrived, so multi-byte characters split between reads are
+ * never corrupted. Bodies are copied straight into an array
+ * of the right size when a {@code Content-Length} is given,
+ * or assembled chunk by chunk when the body is sent with
+ * {@code Transfer-Encoding: chunked}, as described in
+ * <a href="https://tools.ietf.org/html/rfc7230#section-4.1">Section
+ * 4.1 of RFC 7230</a>.
+ * <p>
+ * The parser stops consuming bytes as soon as a request is
+ * complete, so anything left in the buffer belongs to the
+ * next request. Once the request has been
+ * {@link #construct() constructed}, {@link #reset()} should
+ * be called before parsing the next one.
+ * <p>
+ * Created <b> 2026-10-17 </b>.
+ *
+ * @since 1.0.0
+ * @version 1.0.0
+ * @author Joseph Wang
+ * @see Request
+ */
+public class RequestParser {
+  /** The longest a request line or header line may be. */
+  public static final int MAX_LINE_LENGTH = 8192;
+  /** The most headers a single request may have. */
+  public static final int MAX_HEADERS = 100;
+  /** The initial size of the line buffer. */
+  private static final int INITIAL_LINE_SIZE = 256;
+  /** The initial size of a chunked body. */
+  private static final int INITIAL_CHUNKED_BODY_SIZE = 1024;
+  /** An empty body, shared by every request without one. */
+  private static final byte[] EMPTY_BODY = new byte[0];
+
+  /**
+   * The states of this parser, in the order they normally
+   * happen.
+   */
+  private enum State {
+    /** Waiting for the request line. */
+    REQUEST_LINE,
+    /** Reading header lines, up until an empty line. */
+    HEADER_LINE,
+    /** Reading a body with a known length. */
+    BODY,
+    /** Waiting for the size line of a chunk. */
+    CHUNK_SIZE,
+    /** Reading the data of a chunk. */
+    CHUNK_DATA,
+    /** Waiting for the line break after a chunk. */
+    CHUNK_DATA_END,
+    /** Reading trailer lines after the last chunk. */
+    TRAILER,
+    /** A full request has been read. */
+    COMPLETE;
+  }
+
+  /** The current state of this parser. */
+  private State state;
+  /** The bytes of the line currently being read. */
+  private byte[] line;
+  /** The amount of bytes in the current line. */
+  private int lineLength;
+  /** Whether any bytes of a request have been seen yet. */
+  private boolean started;
+
+  /** The method of the request. */
+  private String method;
+  /** The request target, including any query string. */
+  private String target;
+  /** The protocol of the request. */
+  private String protocol;
+  /** The headers of the request. */
+  private HashMap<String, String> headers;
+  /** The body of the request, possibly larger than needed. */
+  private byte[] body;
+  /** The amount of body bytes read so far. */
+  private int bodyLength;
+  /** The bytes left in the current chunk or fixed body. */
+  private long remaining;
+
+  /**
+   * Constructs a new RequestParser, ready to parse a request.
+   */
+  public RequestParser() {
+    this.line = new byte[RequestParser.INITIAL_LINE_SIZE];
+    this.reset();
+  }
+
+  /**
+   * Resets this parser to parse a new request.
+   * <p>
+   * The line buffer is kept between requests, so that it does
+   * not have to grow again.
+   */
+  public void reset() {
+    this.state = State.REQUEST_LINE;
+    this.lineLength = 0;
+    this.started = false;
+
+    this.method = null;
+    this.target = null;
+    this.protocol = null;
+    this.headers = new HashMap<>();
+    this.body = RequestParser.EMPTY_BODY;
+    this.bodyLength = 0;
+    this.remaining = 0;
+  }
+
+  /**
+   * Parses as many bytes from the provided buffer as are
+   * needed to complete the current request.
+   * <p>
+   * The buffer should be ready for reading. Its position will
+   * be moved past every byte consumed, and any bytes after
+   * the end of the request are left in the buffer.
+   *
+   * @param buffer The buffer to parse bytes from.
+   * @return true if a full request has been parsed.
+   * @throws HttpSyntaxException if the request is malformed.
+   */
+  public boolean parse(ByteBuffer buffer) throws HttpSyntaxException {
+    while (this.state != State.COMPLETE && buffer.hasRemaining()) {
+      switch (this.state) {
+        case BODY:
+        case CHUNK_DATA:
+          this.readBody(buffer);
+          break;
+        default:
+          if (this.readLine(buffer)) {
+            this.handleLine();
+            this.lineLength = 0;
+          }
+          break;
+      }
+    }
+
+    return this.state == State.COMPLETE;
+  }
+
+  /**
+   * Reads bytes into the line buffer until the end of a line
+   * is found, or the buffer runs out.
+   * <p>
+   * Lines are ended with {@code CRLF}, but a bare {@code LF}
+   * is also accepted. The line ending is not kept.
+   *
+   * @param buffer The buffer to read from.
+   * @return true if a full line has been read.
+   * @throws HttpSyntaxException if the line is too long.
+   */
+  private boolean readLine(ByteBuffer buffer) throws HttpSyntaxException {
+    while (buffer.hasRemaining()) {
+      byte b = buffer.get();
+      this.started = true;
+
+      if (b == '\n') {
+        if (this.lineLength > 0 && this.line[this.lineLength-1] == '\r') {
+          this.lineLength--;
+        }
+        return true;
+      }
+
+      if (this.lineLength == this.line.length) {
+        if (this.line.length >= RequestParser.MAX_LINE_LENGTH) {
+          throw new HttpSyntaxException("Line too long.");
+        }
+        this.line = this.grow(this.line, this.line.length*2);
+      }
+      this.line[this.lineLength++] = b;
+    }
+
+    return false;
+  }
+
+  /**
+   * Handles a full line, according to the current state.
+   *
+   * @throws HttpSyntaxException if the line is malformed.
+   */
+  private void handleLine() throws HttpSyntaxException {
+    switch (this.state) {
+      case REQUEST_LINE:
+        // Empty lines before a request should be ignored
+        if (this.lineLength > 0) {
+          this.parseRequestLine();
+          this.state = State.HEADER_LINE;
+        } else {
+          this.started = false;
+        }
+        break;
+      case HEADER_LINE:
+        if (this.lineLength > 0) {
+          this.parseHeaderLine();
+        } else {
+          this.beginBody();
+        }
+        break;
+      case CHUNK_SIZE:
+        this.parseChunkSize();
+        break;
+      case CHUNK_DATA_END:
+        if (this.lineLength != 0) {
+          throw new HttpSyntaxException("Chunk data longer than chunk size.");
+        }
+        this.state = State.CHUNK_SIZE;
+        break;
+      case TRAILER:
+        // Trailers are allowed but not used
+        if (this.lineLength == 0) {
+          this.state = State.COMPLETE;
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Parses the request line, in the form of
+   * {@code method SP request-target SP HTTP-version}.
+   *
+   * @throws HttpSyntaxException if the line is malformed.
+   */
+  private void parseRequestLine() throws HttpSyntaxException {
+    int firstSpace = this.indexOf((byte)' ', 0);
+    int secondSpace = this.indexOf((byte)' ', firstSpace+1);
+    if (
+      firstSpace <= 0
+        || secondSpace <= firstSpace+1
+        || secondSpace == this.lineLength-1
+        || this.indexOf((byte)' ', secondSpace+1) != -1
+    ) {
+      throw new HttpSyntaxException("Status string invalid.");
+    }
+
+    this.method = this.ascii(0, firstSpace);
+    this.target = this.utf8(firstSpace+1, secondSpace);
+    this.protocol = this.ascii(secondSpace+1, this.lineLength);
+  }
+
+  /**
+   * Parses a header line, in the form of
+   * {@code field-name ":" OWS field-value OWS}.
+   * <p>
+   * Repeated headers are combined into one comma separated
+   * value, as allowed by
+   * <a href="https://tools.ietf.org/html/rfc7230#section-3.2.2">Section
+   * 3.2.2 of RFC 7230</a>. Headers with an empty value are
+   * ignored.
+   *
+   * @throws HttpSyntaxException if the line is malformed.
+   */
+  private void parseHeaderLine() throws HttpSyntaxException {
+    int colon = this.indexOf((byte)':', 0);
+    if (colon <= 0 || this.isWhitespace(this.line[colon-1])) {
+      throw new HttpSyntaxException("Malformed header.");
+    }
+    if (this.headers.size() >= RequestParser.MAX_HEADERS) {
+      throw new HttpSyntaxException("Too many headers.");
+    }
+
+    int valueStart = colon+1;
+    int valueEnd = this.lineLength;
+    while (valueStart < valueEnd && this.isWhitespace(this.line[valueStart])) {
+      valueStart++;
+    }
+    while (valueEnd > valueStart && this.isWhitespace(this.line[valueEnd-1])) {
+      valueEnd--;
+    }
+    if (valueStart == valueEnd) {
+      return;
+    }
+
+    String name = this.ascii(0, colon);
+    String value = this.utf8(valueStart, valueEnd);
+    String existing = this.headers.get(name);
+    if (existing != null) {
+      value = existing+(name.equalsIgnoreCase("Cookie") ? "; " : ", ")+value;
+    }
+
+    this.headers.put(name, value);
+  }
+
+  /**
+   * Decides how the body of the request is sent, once all the
+   * headers have been read.
+   * <p>
+   * {@code Transfer-Encoding} takes priority over
+   * {@code Content-Length}. If neither exist, the request has
+   * no body.
+   *
+   * @throws HttpSyntaxException if the body headers are
+   *                             invalid.
+   */
+  private void beginBody() throws HttpSyntaxException {
+    String transferEncoding = this.findHeader("Transfer-Encoding");
+    String contentLength = this.findHeader("Content-Length");
+
+    if (transferEncoding != null) {
+      if (!transferEncoding.equalsIgnoreCase("chunked")) {
+        throw new HttpSyntaxException("Unsupported transfer encoding.");
+      }
+
+      this.body = new byte[RequestParser.INITIAL_CHUNKED_BODY_SIZE];
+      this.state = State.CHUNK_SIZE;
+
+    } else if (contentLength != null) {
+      this.remaining = this.parseLength(contentLength, 10);
+      this.body = new byte[(int)this.remaining];
+      this.state = (this.remaining > 0) ? State.BODY : State.COMPLETE;
+
+    } else {
+      this.state = State.COMPLETE;
+    }
+  }
+
+  /**
+   * Parses the size line of a chunk, ignoring any chunk
+   * extensions.
+   *
+   * @throws HttpSyntaxException if the size is invalid.
+   */
+  private void parseChunkSize() throws HttpSyntaxException {
+    int end = this.indexOf((byte)';', 0);
+    if (end == -1) {
+      end = this.lineLength;
+    }
+    while (end > 0 && this.isWhitespace(this.line[end-1])) {
+      end--;
+    }
+
+    this.remaining = this.parseLength(this.ascii(0, end), 16);
+    if (this.remaining == 0) {
+      this.state = State.TRAILER;
+    } else {
+      long required = this.bodyLength+this.remaining;
+      if (required > Integer.MAX_VALUE-8) {
+        throw new HttpSyntaxException("Body too large.");
+      }
+      if (required > this.body.length) {
+        this.body =
+          this.grow(this.body, (int)Math.max(required, this.body.length*2L));
+      }
+      this.state = State.CHUNK_DATA;
+    }
+  }
+
+  /**
+   * Copies as much of the remaining body or chunk as is
+   * available straight into the body array.
+   *
+   * @param buffer The buffer to copy from.
+   */
+  private void readBody(ByteBuffer buffer) {
+    int toCopy = (int)Math.min(this.remaining, buffer.remaining());
+    buffer.get(this.body, this.bodyLength, toCopy);
+    this.bodyLength += toCopy;
+    this.remaining -= toCopy;
+
+    if (this.remaining == 0) {
+      if (this.state == State.BODY) {
+        this.state = State.COMPLETE;
+      } else {
+        this.state = State.CHUNK_DATA_END;
+      }
+    }
+  }
+
+  /**
+   * Parses a non-negative length in the provided radix.
+   *
+   * @param length The string with the length.
+   * @param radix  The radix of the length.
+   * @return the parsed length.
+   * @throws HttpSyntaxException if the length is invalid or
+   *                             too large.
+   */
+  private long parseLength(String length, int radix)
+    throws HttpSyntaxException {
+    try {
+      long parsed = Long.parseLong(length, radix);
+      if (parsed < 0 || parsed > Integer.MAX_VALUE-8) {
+        throw new HttpSyntaxException("Invalid body length.");
+      }
+      return parsed;
+    } catch (NumberFormatException e) {
+      throw new HttpSyntaxException("Invalid body length.", e);
+    }
+  }
+
+  /**
+   * Finds a header, ignoring the case of its name.
+   *
+   * @param name The name of the header to find.
+   * @return the value of the header, or {@code null} if the
+   *         request does not have it.
+   */
+  private String findHeader(String name) {
+    String value = this.headers.get(name);
+    if (value != null) {
+      return value;
+    }
+
+    for (String header : this.headers.keySet()) {
+      if (header.equalsIgnoreCase(name)) {
+        return this.headers.get(header);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Checks whether a full request has been parsed.
+   *
+   * @return true if a full request has been parsed.
+   */
+  public boolean isComplete() {
+    return this.state == State.COMPLETE;
+  }
+
+  /**
+   * Checks whether any part of a request has been parsed yet.
+   *
+   * @return true if this parser is in the middle of a
+   *         request.
+   */
+  public boolean hasStarted() {
+    return this.started;
+  }
+
+  /**
+   * Constructs the parsed request.
+   *
+   * @return the parsed request.
+   * @throws HttpSyntaxException if the request is not
+   *                             complete, or its path,
+   *                             headers or cookies are
+   *                             invalid.
+   */
+  public Request construct() throws HttpSyntaxException {
+    if (this.state != State.COMPLETE) {
+      throw new HttpSyntaxException("The request is incomplete.");
+    }
+
+    byte[] requestBody = this.body;
+    if (this.bodyLength != this.body.length) {
+      requestBody = this.grow(this.body, this.bodyLength);
+    }
+
+    try {
+      return new Request(
+        this.method,
+        this.target,
+        this.protocol,
+        this.headers,
+        requestBody
+      );
+    } catch (InvalidHeaderException e) {
+      throw new HttpSyntaxException("A header was invalid", e);
+    }
+  }
+
+  /**
+   * Finds the first occurrence of a byte in the current line.
+   *
+   * @param b    The byte to look for.
+   * @param from The index to start looking from.
+   * @return the index of the byte, or -1 if not found.
+   */
+  private int indexOf(byte b, int from) {
+    for (int i = from; i < this.lineLength; i++) {
+      if (this.line[i] == b) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Checks if a byte is optional whitespace (a space or tab).
+   *
+   * @param b The byte to check.
+   * @return true if the byte is whitespace.
+   */
+  private boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\t';
+  }
+
+  /**
+   * Decodes part of the current line as ASCII.
+   *
+   * @param start The index to start at, inclusive.
+   * @param end   The index to end at, exclusive.
+   * @return the decoded string.
+   */
+  private String ascii(int start, int end) {
+    return new String(this.line, start, end-start, StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Decodes part of the current line as UTF-8.
+   *
+   * @param start The index to start at, inclusive.
+   * @param end   The index to end at, exclusive.
+   * @return the decoded string.
+   */
+  private String utf8(int start, int end) {
+    return new String(this.line, start, end-start, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Copies an array into a new array of a different size.
+   *
+   * @param array  The array to copy.
+   * @param length The length of the new array.
+   * @return the new array.
+   */
+  private byte[] grow(byte[] array, int length) {
+    byte[] grown = new byte[length];
+    System.arraycopy(array, 0, grown, 0, Math.min(array.length, length));
+    return grown;
+  }
+}
@@ -0,0 +1,188 @@
+package webserver;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * An acceptor that serves every connection on a thread of
+ * its own, using blocking I/O.
+ * <p>
+ * When running on a Java version with virtual threads, each
+ * connection is given a virtual thread, so thousands of
+ * connections blocked on slow handlers only cost their
+ * stacks. Otherwise, an unbounded cached pool of platform
+ * threads is used. In both cases, accepting a connection
+ * never fails because the threads are used up.
+ * <p>
+ * Created <b> 2026-10-17 </b>.
+ *
+ * @since 1.0.0
+ * @version 1.0.0
+ * @author Joseph Wang
+ * @see ConnectionMode#VIRTUAL_THREADS
+ */
+class ThreadPerConnectionAcceptor implements ConnectionAcceptor {
+  /** The server that requests are handled by. */
+  private final WebServer server;
+  /** The channel accepting new connections. */
+  private final ServerSocketChannel serverChannel;
+  /** The executor starting a thread for each connection. */
+  private final ExecutorService connectionThreads;
+  /** Every connection currently open. */
+  private final Set<Connection> connections;
+  /** Whether the acceptor should keep running. */
+  private volatile boolean running = true;
+
+  /**
+   * Constructs a new ThreadPerConnectionAcceptor listening on
+   * a port.
+   *
+   * @param server The server that requests are handled by.
+   * @param port   The port to listen on.
+   * @throws IOException if the port could not be bound.
+   */
+  public ThreadPerConnectionAcceptor(WebServer server, int port)
+    throws IOException {
+    this.server = server;
+    this.connectionThreads = ThreadPerConnectionAcceptor.newThreadExecutor();
+    this.connections = ConcurrentHashMap.newKeySet();
+
+    this.serverChannel = ServerSocketChannel.open();
+    this.serverChannel.bind(new InetSocketAddress(port));
+  }
+
+  /**
+   * Creates an executor that starts a new virtual thread for
+   * every task, or a cached pool of platform threads if
+   * virtual threads are not available.
+   *
+   * @return a new executor with a thread per task.
+   */
+  private static ExecutorService newThreadExecutor() {
+    try {
+      // Looked up reflectively so the server still runs on a
+      // Java version from before virtual threads
+      return (ExecutorService)Executors.class
+        .getMethod("newVirtualThreadPerTaskExecutor")
+        .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Accepts connections until {@link #stop()} is called.
+   */
+  @Override
+  public void run() {
+    while (this.running) {
+      SocketChannel client;
+      try {
+        client = this.serverChannel.accept();
+        client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      } catch (ClosedChannelException e) {
+        break;
+      } catch (IOException e) {
+        System.out.println("Failed to accept a connection.");
+        e.printStackTrace();
+        continue;
+      }
+
+      try {
+        this.connectionThreads.execute(() -> this.serve(client));
+      } catch (RejectedExecutionException e) {
+        // Only happens once the server is shutting down
+        this.closeClient(client);
+      }
+    }
+
+    this.connectionThreads.shutdown();
+  }
+
+  /**
+   * Serves every request from a client until the connection
+   * should be closed, and then closes it.
+   *
+   * @param client The channel connected to the client.
+   */
+  private void serve(SocketChannel client) {
+    Connection connection;
+    try {
+      connection = new Connection(this.server, client);
+    } catch (IOException e) {
+      this.closeClient(client);
+      return;
+    }
+    this.connections.add(connection);
+
+    try {
+      boolean keepOpen = true;
+      while (keepOpen && this.running) {
+        long remainingMs =
+          connection.getExpiryTime()-System.currentTimeMillis();
+        if (remainingMs <= 0) {
+          break;
+        }
+        client.socket().setSoTimeout((int)remainingMs);
+
+        if (connection.read() < 0) {
+          break;
+        }
+        if (connection.hasCompletedRequest()) {
+          keepOpen = connection.respond();
+        }
+      }
+    } catch (IOException e) {
+      // Timed out or disconnected, either way we are done
+    } catch (RuntimeException e) {
+      e.printStackTrace();
+    } finally {
+      this.connections.remove(connection);
+      connection.close();
+    }
+  }
+
+  /**
+   * Closes a client channel that never became a connection.
+   *
+   * @param client The channel to close.
+   */
+  private void closeClient(SocketChannel client) {
+    try {
+      client.close();
+    } catch (IOException e) {
+      System.out.println("Failed to close connection.");
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Threads still serving a connection have their connection
+   * closed from under them, and exit soon after.
+   */
+  @Override
+  public void stop() {
+    this.running = false;
+
+    try {
+      this.serverChannel.close();
+    } catch (IOException e) {
+      System.out.println("Could not shut down server socket!");
+    }
+    for (Connection connection : this.connections) {
+      connection.close();
+    }
+  }
+}
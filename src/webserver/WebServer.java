@@ -1,7 +1,5 @@
 package webserver;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.File;
@@ -9,14 +7,10 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketException;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
@@ -35,11 +29,14 @@ import webserver.webcache.WebLruCache;
  * {@code RouteTarget} to handle. More details about routing
  * can be found in {@link #route(String, RouteTarget)}.
  * <p>
- * This server also serves connections using a
- * ThreadPoolExecutor with a min and max bound, to avoid
- * spawning an unreasonable amount of threads, but to also
- * have a minimum amount of threads to serve requests
- * without spawning new threads.
+ * Connections are accepted and read by a single
+ * {@link EventLoop} using a {@code Selector}, so that
+ * connections idling between requests do not hold on to a
+ * thread. Once a request has been fully read, it is
+ * handled by a fixed pool of worker threads, which also
+ * write the response back to the client. Alternatively,
+ * each connection can be served by a virtual thread of its
+ * own; see {@link ConnectionMode}.
  * <p>
  * Created <b> 2020-12-28 </b>
  *
@@ -48,15 +45,25 @@ import webserver.webcache.WebLruCache;
  * @author Joseph Wang, Shari Sun
  */
 public class WebServer {
+  /**
+   * The amount of workers available to handle requests at
+   * the same time. Open connections do not occupy a worker
+   * unless they have a request being handled.
+   */
+  public static final int WORKER_THREADS = 32;
+
   /** The port that this WebServer is hosted on. **/
   private int port;
   /** Whether the server is currently running or not. */
-  private boolean running = true;
+  private volatile boolean running = true;
 
+  /** How connections to this web server are mapped to threads. */
+  private ConnectionMode mode;
   /**
-   * The {@code ServerSocket} associated with this web server.
+   * The acceptor accepting and reading connections for this
+   * web server.
    */
-  private ServerSocket sock;
+  private ConnectionAcceptor acceptor;
   /** The routes that this WebServer has. */
   private HashMap<Pattern, RouteTarget> routes;
   /**
@@ -73,8 +80,8 @@ public class WebServer {
   private WebLruCache cache;
 
   /**
-   * The thread pool, to execute connections without needing
-   * to allocate a thread to each connection.
+   * The thread pool that requests are handled on, once they
+   * have been fully read from a connection.
    */
   private ExecutorService workers;
 
@@ -108,13 +115,51 @@ public class WebServer {
    *                         server's web cache
    */
   public WebServer(int port, int maxCacheCapacity) {
+    this(port, maxCacheCapacity, ConnectionMode.EVENT_LOOP);
+  }
+
+  /**
+   * Constructs a new WebServer with a specified connection
+   * mode that should run on a specified port.
+   * <p>
+   * To actually start running the web server after
+   * constructing it, call {@link #run()}.
+   * <p>
+   * The web cache will be made with the default web cache
+   * capacity, defined by the constant
+   * {@link WebLruCache#DEFAULT_MAX_CAPACITY}.
+   *
+   * @param port The port to host this web server on.
+   * @param mode How connections should be mapped to threads.
+   */
+  public WebServer(int port, ConnectionMode mode) {
+    this(port, WebLruCache.DEFAULT_MAX_CAPACITY, mode);
+  }
+
+  /**
+   * Constructs a new WebServer with a specified cache
+   * capacity and connection mode that should run on a
+   * specified port.
+   * <p>
+   * To actually start running the web server after
+   * constructing it, call {@link #run()}.
+   *
+   * @param port             The port to host this web server
+   *                         on.
+   * @param maxCacheCapacity The max capacity of this web
+   *                         server's web cache
+   * @param mode             How connections should be mapped
+   *                         to threads.
+   */
+  public WebServer(int port, int maxCacheCapacity, ConnectionMode mode) {
+    this.mode = mode;
     this.workers =
       new ThreadPoolExecutor(
-        20,
-        200,
+        WebServer.WORKER_THREADS,
+        WebServer.WORKER_THREADS,
         60L,
         TimeUnit.SECONDS,
-        new SynchronousQueue<Runnable>()
+        new LinkedBlockingQueue<Runnable>()
       );
 
     this.routes = new HashMap<>();
@@ -127,17 +172,23 @@ public class WebServer {
   /**
    * Begins running this web server, allowing it to accept and
    * respond to connections.
+   * <p>
+   * This method blocks for as long as the server is running.
    */
   public void run() {
     try {
-      this.sock = new ServerSocket(port);
-      Socket client;
-
-      while (running) {
-        client = this.sock.accept();
-        this.workers.execute(new ConnectionHandler(client));
+      switch (this.mode) {
+        case VIRTUAL_THREADS:
+          this.acceptor = new ThreadPerConnectionAcceptor(this, this.port);
+          break;
+        default:
+          this.acceptor = new EventLoop(this, this.port, this.workers);
+          break;
       }
 
+      if (this.running) {
+        this.acceptor.run();
+      }
     } catch (IOException e) {
       e.printStackTrace();
     }
@@ -148,17 +199,15 @@ public class WebServer {
    * <p>
    * Any existing task remaining in the task queue will be
    * discarded. No new tasks will be accepted, and closing of
-   * the socket will be attempted.
+   * the socket and every open connection will be attempted.
    */
   public void shutdown() {
     this.running = false;
     // dispose of all tasks, and shuts down all workers
     this.workers.shutdownNow();
 
-    try {
-      this.sock.close();
-    } catch (IOException e) {
-      System.out.println("Could not shut down server socket!");
+    if (this.acceptor != null) {
+      this.acceptor.stop();
     }
   }
 
@@ -424,351 +473,81 @@ public class WebServer {
   }
 
   /**
-   * A connection handler designed to handle a connection from
-   * a specified client.
+   * Attempts to store the provided response body in the web
+   * cache, for later retrieval.
    * <p>
-   * This class is designed to work alongside a webserver, and
-   * will manage all io with the connected client (expected to
-   * be a browser of some sort). More specifically, it will
-   * read in the client's HTTP request and return an HTTP
-   * response to the client.
-   * <p>
-   * Created <b>2021-01-08</b>.
+   * If the response {@code Cache-Control} header contains
+   * {@code no-store} or {@code no-cache}, the body will not
+   * be cached.
    *
-   * @since 0.0.1
-   * @version 1.0.0
-   * @author Joseph Wang
+   * @param fullPath The path to store the body under.
+   * @param response The response to store.
    */
-  private class ConnectionHandler implements Runnable {
-    /**
-     * The default amount of time to wait before terminating a
-     * connection.
-     */
-    public static final int DEFAULT_TIMEOUT_MS = 15_000;
-    /**
-     * The default amount of requests that can be sent on one
-     * connection.
-     */
-    public static final int MAX_REQ = 100;
-
-    /**
-     * The amount of time to wait before terminating a
-     * connection.
-     */
-    private int timeoutMs = ConnectionHandler.DEFAULT_TIMEOUT_MS;
-    /**
-     * The amount of requests that can be sent on one
-     * connection.
-     */
-    private int maxReq = ConnectionHandler.MAX_REQ;
-    /** When the connection was opened, in ms. */
-    private long connectionOpenTime;
-    /** The current amount of requests handled. */
-    private int curReq;
-    /** If the connection should be closed immediately. */
-    private boolean closeImmediately = false;
-
-    /** The client to handle. */
-    private Socket client;
-    /** The input stream from the client. */
-    private BufferedInputStream input;
-    /** The output stream for the client. */
-    // private PrintWriter output;
-    private BufferedOutputStream output;
-    /** Determines if the connection loop should run. */
-    private boolean shouldRun = true;
-
-    /**
-     * Constructs a new ConnectionHandler to handle a specific
-     * client.
-     *
-     * @param client The client to handle.
-     */
-    public ConnectionHandler(Socket client) {
-      this.client = client;
-
-      try {
-        // Initialize proper input and output
-        // We use a buffered input stream instead of a buffered
-        // reader because the body is not required to have a
-        // trailing CRLF, which would cause the
-        // BufferedReader.nextLine() to forever read
-        this.input = new BufferedInputStream(this.client.getInputStream());
-
-        // Use a buffered output stream to properly send files
-        this.output = new BufferedOutputStream(this.client.getOutputStream());
-
-        this.connectionOpenTime = System.currentTimeMillis();
-        this.curReq = 0;
-
-      } catch (SocketException e) {
-        System.out.println("A stream failed to connect.");
-        e.printStackTrace();
-      } catch (IOException e) {
-        System.out.println("An I/O error occurred while handling the streams.");
-        e.printStackTrace();
-      }
+  private void attemptCacheStorage(String fullPath, Response response) {
+    // Ensure the body exists and has content
+    if (!response.hasHeader("Content-Type")) {
+      return;
     }
 
-    /**
-     * {@inheritDoc}
-     * <p>
-     * Starts this ConnectionHandler and begins handling a
-     * specific client.
-     */
-    public void run() {
-      try {
-        // Keep this connection open for as long as we need it in
-        // case keep-alive header exists
-        do {
-          // Create a new request builder for each request
-          RequestBuilder rb = new RequestBuilder();
-
-          // Wait for initial request
-          boolean waitingForConnection = true;
-          while (waitingForConnection) {
-            if (this.input.available() > 0) {
-              this.assembleRequest(rb);
-
-              waitingForConnection = false;
-            }
-          }
-
-          Response res;
-          this.curReq++;
-          try {
-            Request req = rb.construct();
-
-            if (!req.getProtocol().equals("HTTP/1.1")) {
-              res = Response.unsupportedVersion();
-            } else {
-              this.initializeConnectionInformation(req);
-              res = this.generateResponseFromRequest(req);
-              this.attemptCacheStorage(req.getFullPath(), res);
-            }
-          } catch (HttpSyntaxException e) {
-            res = Response.badRequest();
-          }
-
-          // Finally, output to user
-          // Keep open if keep alive header exists
-          byte[] outputResponse =
-            res.toString().getBytes(StandardCharsets.UTF_8);
-          this.output.write(outputResponse, 0, outputResponse.length);
-          this.output.flush();
-
-          // TODO: do we even need to remove hop to hop headers
-          this.shouldRun = shouldCloseConnection();
-        } while (this.shouldRun);
-
-        this.closeConnection();
-      } catch (IOException e) {
-        e.printStackTrace();
-      }
+    // TODO: improve later
+    // Only store html files in the cache
+    if (!response.getHeader("Content-Type").equals("text/html")) {
+      return;
     }
 
-    /**
-     * Determines whether or not to close the current open
-     * connection with the client, based on {@code Connection}
-     * and {@code Keep-Alive} headers.
-     * <p>
-     * If the headers do not exist, the connection persists for
-     * the default amount of time or requests.
-     *
-     * @return true if the connection with the client should be
-     *         terminated.
-     */
-    private boolean shouldCloseConnection() {
-      if (this.curReq >= this.maxReq) {
-        return true;
-      }
-
+    if (response.hasHeader("Cache-Control")) {
+      // Do not cache if it is labelled as "do not cache"
+      String cacheControl = response.getHeader("Cache-Control");
       if (
-        System.currentTimeMillis()-this.connectionOpenTime >= this.timeoutMs
+        cacheControl.contains("no-store") || cacheControl.contains("no-cache")
       ) {
-        return true;
-      }
-
-      // If neither of the above are true, just make sure we don't
-      // need to close immediately
-      return this.closeImmediately;
-    }
-
-    /**
-     * Initializes information about the connection with the
-     * client.
-     * <p>
-     * This method will use {@code Connection} and
-     * {@code Keep-Alive} headers to determine how to manage the
-     * connection. If these headers are not present, the
-     * connection will persist for the default amount of time or
-     * requests.
-     * <p>
-     * Refer to
-     * <a href="https://tools.ietf.org/html/rfc2616">RFC
-     * 2616</a> for more details.
-     *
-     * @param res The response to use to parse information about
-     *            the connection.
-     * @throws HttpSyntaxException if the {@code Keep-Alive}
-     *                             header is invalid.
-     */
-    private void initializeConnectionInformation(Request res)
-      throws HttpSyntaxException {
-      // Connection header does not exist
-      if (!res.hasHeader("Connection")) {
-        return;
-      }
-
-      // Connection header exists
-      String connectionValue = res.getHeader("Connection");
-
-      // Return if we are to close immediately
-      if (connectionValue.contains("close")) {
-        this.closeImmediately = true;
         return;
-
-      } else if (connectionValue.contains("keep-alive")) {
-        if (res.hasHeader("Keep-Alive")) {
-          String pattern = "timeout=(\\d+), max=(\\d+)";
-          Matcher m =
-            Pattern.compile(pattern).matcher(res.getHeader("Keep-Alive"));
-
-          if (m.find()) {
-            this.timeoutMs = Integer.parseInt(m.group(0));
-            this.maxReq = Integer.parseInt(m.group(1));
-          } else {
-            throw new HttpSyntaxException("Keep-Alive header malformed.");
-          }
-        }
       }
-      // If connection has neither close or keep-alive, use
-      // default
     }
-
-    /**
-     * Attempts to assemble a request from the input stream.
-     * <p>
-     * This method will return early if the
-     * {@code RequestBuilder} timeout has been reached while
-     * assembling the event
-     * ({@link RequestBuilder#shouldTimeout()} returns
-     * {@code true}).
-     *
-     * @param rb The {@code RequestBuilder} used to assemble the
-     *           request.
-     * @throws IOException if an I/O error occurs during reading
-     *                     the connection.
-     */
-    private void assembleRequest(RequestBuilder rb) throws IOException {
-      rb.resetTimeoutStart();
-
-      while (!rb.hasCompletedRequest()) {
-        if (this.input.available() > 0) {
-          byte[] buffArr = new byte[this.input.available()];
-          this.input.read(buffArr, 0, this.input.available());
-
-          rb.append(new String(buffArr, StandardCharsets.UTF_8));
-
-          // Make sure to exit if we complete the request
-          if (rb.hasCompletedRequest()) {
-            return;
-          }
-        }
-
-        // If this loops for long enough, return early
-        if (rb.shouldTimeout()) {
-          return;
-        }
-      }
+    // TODO check if the request is a HEAD, and if so, dont
+    // actually use the body
+    if (!this.cache.checkCache(fullPath)) {
+      this.cache.putCache(response.getBody(), fullPath, 60);
     }
+  }
 
-    /**
-     * Attempts to close the connection with the client.
-     */
-    private void closeConnection() {
-      try {
-        this.input.close();
-        this.output.close();
-        this.client.close();
-      } catch (IOException e) {
-        System.out.println("Failed to close connection.");
-        e.printStackTrace();
+  /**
+   * Generates a new response given an HTTP request.
+   * <p>
+   * This response can stem from the cache or a handler. If
+   * neither can handle the request, a generic fail page will
+   * be returned alongside a 404 response. Responses that are
+   * eligible will be stored in the cache on the way out.
+   *
+   * @param request The HTTP request to handle.
+   * @return an HTTP response to return to the user.
+   */
+  Response generateResponse(Request request) {
+    // Get handler and initialize parameters
+    RouteTarget handler = this.getRoute(request);
+
+    // The cache should only store html files because those are
+    // the templated ones
+    byte[] cachedBody = this.cache.getCachedObject(request.getFullPath());
+    if (cachedBody != null) {
+      // Retrieve the cached object
+      if (request.getMethod().equals("HEAD")) {
+        return Response.okByteHtml(cachedBody, false);
+      } else if (request.getMethod().equals("GET")) {
+        return Response.okByteHtml(cachedBody);
       }
     }
 
-    /**
-     * Attempts to store the provided response body in the web
-     * cache, for later retrieval.
-     * <p>
-     * If the response {@code Cache-Control} header contains
-     * {@code no-store} or {@code no-cache}, the body will not
-     * be cached.
-     *
-     * @param fullPath The path to store the body under.
-     * @param response The response to store.
-     */
-    private void attemptCacheStorage(String fullPath, Response response) {
-      // Ensure the body exists and has content
-      if (!response.hasHeader("Content-Type")) {
-        return;
-      }
-
-      // TODO: improve later
-      // Only store html files in the cache
-      if (!response.getHeader("Content-Type").equals("text/html")) {
-        return;
-      }
-
-      if (response.hasHeader("Cache-Control")) {
-        // Do not cache if it is labelled as "do not cache"
-        String cacheControl = response.getHeader("Cache-Control");
-        if (
-          cacheControl.contains("no-store") || cacheControl.contains("no-cache")
-        ) {
-          return;
-        }
-      }
-      // TODO check if the request is a HEAD, and if so, dont
-      // actually use the body
-      if (!cache.checkCache(fullPath)) {
-        cache.putCache(response.getBody(), fullPath, 60);
-      }
+    Response response;
+    if (handler != null) {
+      // Return the accepted response
+      response = handler.accept(request);
+    } else {
+      // Generate the failed response
+      response = Response.notFoundHtml(request.getPath());
     }
 
-    /**
-     * Generates a new response given an HTTP request.
-     * <p>
-     * This response can stem from the cache or a handler. If
-     * neither can handle the request, a generic fail page will
-     * be returned alongside a 404 response.
-     *
-     * @param request The HTTP request to handle.
-     * @return an HTTP response to return to the user.
-     */
-    private Response generateResponseFromRequest(Request request) {
-      // Get handler and initialize parameters
-      RouteTarget handler = WebServer.this.getRoute(request);
-
-      // The cache should only store html files because those are
-      // the templated ones
-      byte[] cachedBody = cache.getCachedObject(request.getFullPath());
-      if (cachedBody != null) {
-        // Retrieve the cached object
-        if (request.getMethod().equals("HEAD")) {
-          return Response.okByteHtml(cachedBody, false);
-        } else if (request.getMethod().equals("GET")) {
-          return Response.okByteHtml(cachedBody);
-        }
-      }
-
-      if (handler != null) {
-        // Return the accepted response
-        return handler.accept(request);
-      } else {
-        // Generate the failed response
-        return Response.notFoundHtml(request.getPath());
-      }
-    }
+    this.attemptCacheStorage(request.getFullPath(), response);
+    return response;
   }
 }